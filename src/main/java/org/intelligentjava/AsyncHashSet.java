@@ -0,0 +1,361 @@
+package org.intelligentjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous front end for {@link HashSet}. Requests from many threads are put into a bounded queue and a single owner
+ * thread takes them out in batches and applies them to the set, so the set itself is never accessed by more than one thread
+ * and needs no locks. When the queue is full new requests are rejected instead of blocking the caller. Futures are
+ * completed by a separate executor, so callbacks attached to them never run on (and never stall) the owner thread.
+ *
+ */
+public class AsyncHashSet implements AutoCloseable {
+
+    /** Default number of requests which may wait in the queue. */
+    private static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    /** Default maximum number of requests applied in one batch. */
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    /**
+     * Request put into the queue by {@link #close()} to stop the owner thread. Owner thread is never interrupted, because
+     * interrupting it in the middle of a {@link ChangeLog} write would close the log channel and leave the insert 
+     * half applied.
+     */
+    private static final Request POISON = new Request(null, false);
+
+    /**
+     * Set which is accessed only from {@link owner} thread.
+     */
+    private final HashSet set;
+
+    /**
+     * Requests waiting to be applied to the set.
+     */
+    private final BlockingQueue<Request> queue;
+
+    /**
+     * Maximum number of requests taken from the queue at once.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The only thread which applies requests to the set.
+     */
+    private final Thread owner;
+
+    /**
+     * Executor which completes futures of applied requests.
+     */
+    private final Executor completionExecutor;
+
+    /**
+     * Is true after {@link #close()} was called. No new requests are accepted then.
+     */
+    private volatile boolean closed = false;
+
+    /** Number of requests rejected because the queue was full. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /** Number of batches applied to the set. */
+    private final AtomicLong batchCount = new AtomicLong();
+
+    /** Number of requests applied to the set. */
+    private final AtomicLong processedCount = new AtomicLong();
+
+    /** Sum of all request latencies (from submission to completion) in nanoseconds. */
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    /** Largest request latency in nanoseconds. */
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Constructor. Uses default queue capacity and batch size.
+     *
+     * @param set Set to wrap. It must not be used directly while this front end is open.
+     */
+    public AsyncHashSet(HashSet set) {
+        this(set, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor. Futures are completed in {@link ForkJoinPool#commonPool()}.
+     *
+     * @param set Set to wrap. It must not be used directly while this front end is open.
+     * @param queueCapacity Maximum number of requests waiting to be applied.
+     * @param maxBatchSize Maximum number of requests applied in one batch.
+     */
+    public AsyncHashSet(HashSet set, int queueCapacity, int maxBatchSize) {
+        this(set, queueCapacity, maxBatchSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor. Starts the owner thread.
+     *
+     * @param set Set to wrap. It must not be used directly while this front end is open.
+     * @param queueCapacity Maximum number of requests waiting to be applied.
+     * @param maxBatchSize Maximum number of requests applied in one batch.
+     * @param completionExecutor Executor which completes futures, one task per batch. If it rejects a task, futures of
+     *            that batch are completed on the owner thread.
+     */
+    public AsyncHashSet(HashSet set, int queueCapacity, int maxBatchSize, Executor completionExecutor) {
+        super();
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.set = set;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.completionExecutor = completionExecutor;
+        this.owner = new Thread(this::run, "AsyncHashSet-owner");
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * Adds value to the set asynchronously.
+     *
+     * @param s Hexadecimal string.
+     * @return Future which completes with true if value was added and false if it was already in the set. Completes
+     *         exceptionally with {@link RejectedExecutionException} if the queue is full or this front end is closed.
+     */
+    public CompletableFuture<Boolean> addAsync(String s) {
+        return submit(new Request(s, true));
+    }
+
+    /**
+     * Checks asynchronously if value is in the set.
+     *
+     * @param s Hexadecimal string.
+     * @return Future which completes with the result of {@link HashSet#contains(Object)}. Completes exceptionally with
+     *         {@link RejectedExecutionException} if the queue is full or this front end is closed.
+     */
+    public CompletableFuture<Boolean> containsAsync(String s) {
+        return submit(new Request(s, false));
+    }
+
+    /**
+     * Puts request into the queue without blocking.
+     *
+     * @param request Request to put.
+     * @return Future of the request.
+     */
+    private CompletableFuture<Boolean> submit(Request request) {
+        if (closed) {
+            request.result.completeExceptionally(new RejectedExecutionException("AsyncHashSet is closed"));
+        } else if (!queue.offer(request)) {
+            rejectedCount.incrementAndGet();
+            request.result.completeExceptionally(new RejectedExecutionException("AsyncHashSet queue is full"));
+        } else if (closed && queue.remove(request)) {
+            // closed while offering and owner thread might be gone already
+            request.result.completeExceptionally(new RejectedExecutionException("AsyncHashSet is closed"));
+        }
+        return request.result;
+    }
+
+    /**
+     * Owner thread loop. Waits for the first request, takes all other waiting requests (up to batch size) and applies them
+     * in the order they were submitted. Stops on {@link #POISON}, or when closed and the queue is empty (close() called
+     * from the owner thread itself).
+     */
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        boolean stopped = false;
+        try {
+            while (!stopped) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    // nobody but close() may stop the owner
+                    continue;
+                }
+                queue.drainTo(batch, maxBatchSize - 1);
+                int poisonIndex = batch.indexOf(POISON);
+                if (poisonIndex != -1) {
+                    // requests after poison were offered after close()
+                    for (Request request : batch.subList(poisonIndex + 1, batch.size())) {
+                        request.result.completeExceptionally(new RejectedExecutionException("AsyncHashSet is closed"));
+                    }
+                    batch.subList(poisonIndex, batch.size()).clear();
+                    stopped = true;
+                }
+                if (!batch.isEmpty()) {
+                    apply(batch);
+                }
+                batch.clear();
+                if (closed && queue.isEmpty()) {
+                    stopped = true;
+                }
+            }
+        } finally {
+            // also when owner thread dies unexpectedly, so no request waits forever
+            closed = true;
+            rejectWaitingRequests();
+        }
+    }
+
+    /**
+     * Completes all requests left in the queue with {@link RejectedExecutionException}.
+     */
+    private void rejectWaitingRequests() {
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new RejectedExecutionException("AsyncHashSet is closed"));
+        }
+    }
+
+    /**
+     * Applies batch of requests to the set and hands their futures to {@link completionExecutor}. Metrics are updated
+     * before futures are completed, so callers see them including their own requests.
+     *
+     * @param batch Requests to apply.
+     */
+    private void apply(List<Request> batch) {
+        boolean[] results = new boolean[batch.size()];
+        Throwable[] errors = new Throwable[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            try {
+                results[i] = request.add ? set.add(request.value) : set.contains(request.value);
+            } catch (Throwable e) {
+                errors[i] = e;
+            }
+        }
+        long now = System.nanoTime();
+        long maxLatency = 0;
+        long totalLatency = 0;
+        for (Request request : batch) {
+            long latency = now - request.submitTime;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        batchCount.incrementAndGet();
+        processedCount.addAndGet(batch.size());
+        totalLatencyNanos.addAndGet(totalLatency);
+        if (maxLatency > maxLatencyNanos.get()) {
+            maxLatencyNanos.set(maxLatency);
+        }
+        List<Request> completed = new ArrayList<>(batch);
+        Runnable completion = () -> {
+            for (int i = 0; i < completed.size(); i++) {
+                if (errors[i] != null) {
+                    completed.get(i).result.completeExceptionally(errors[i]);
+                } else {
+                    completed.get(i).result.complete(results[i]);
+                }
+            }
+        };
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Stops accepting new requests, waits until the owner thread applies all requests already in the queue and stops.
+     * If the calling thread is interrupted while waiting, it keeps waiting and its interrupt status is restored. Called
+     * from the owner thread (a callback run by a completion executor which runs tasks in the calling thread) it does not
+     * wait, the owner thread stops after it applies the requests already in the queue.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == owner) {
+            return;
+        }
+        boolean interrupted = false;
+        boolean poisoned = false;
+        while (owner.isAlive()) {
+            try {
+                if (!poisoned) {
+                    poisoned = queue.offer(POISON, 10, TimeUnit.MILLISECONDS);
+                } else {
+                    owner.join();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        rejectWaitingRequests();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Number of requests waiting in the queue.
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return Number of requests rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return Number of batches applied to the set.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return Number of requests applied to the set.
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return Average request latency (from submission to completion) in nanoseconds.
+     */
+    public long getAverageLatencyNanos() {
+        long processed = processedCount.get();
+        return processed == 0 ? 0 : totalLatencyNanos.get() / processed;
+    }
+
+    /**
+     * @return Largest request latency (from submission to completion) in nanoseconds.
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /**
+     * Single add or contains request.
+     */
+    private static class Request {
+
+        /** Hexadecimal string. */
+        private final String value;
+
+        /** Is true for add and false for contains. */
+        private final boolean add;
+
+        /** Submission time in nanoseconds. */
+        private final long submitTime = System.nanoTime();
+
+        /** Future completed by the owner thread. */
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Request(String value, boolean add) {
+            this.value = value;
+            this.add = add;
+        }
+    }
+
+}
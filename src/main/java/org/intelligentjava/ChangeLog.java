@@ -0,0 +1,296 @@
+package org.intelligentjava;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append only binary log of {@link HashSet} changes. File starts with a header holding capacity and value size of the set
+ * which writes it, so it can only be replayed into a set of the same size. Such a set evicts the same values itself, so
+ * evictions are not logged. Every record has the same size: one byte operation code, eight byte sequence number and the
+ * value (valueSize bytes, zeros for {@link #CLEAR}). Records are collected in a buffer and written to the file in groups,
+ * when buffer is full, when a background writer finds records older than the maximum delay, or when {@link #write()} or
+ * {@link #flush()} is called. Methods are synchronized, so write and flush can be called from any thread, also while
+ * the set is owned by {@link AsyncHashSet}. Log is replayed with {@link HashSet#apply(Path, long)}.
+ *
+ */
+public class ChangeLog implements Closeable {
+
+    /** Value was inserted into the set. */
+    public static final byte ADD = 1;
+
+    /** Set was cleared. */
+    public static final byte CLEAR = 3;
+
+    /** Size of the file header: capacity (long) and value size (int). */
+    static final int FILE_HEADER_SIZE = 8 + 4;
+
+    /** Size of operation code and sequence number in a record. */
+    static final int RECORD_HEADER_SIZE = 1 + 8;
+
+    /** Default number of records written to the file at once. */
+    private static final int DEFAULT_GROUP_SIZE = 4096;
+
+    /** Default maximum time records wait in the buffer. */
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+
+    /**
+     * Capacity of the set which writes the log.
+     */
+    private final long capacity;
+
+    /**
+     * Length of the values in the log.
+     */
+    private final int valueSize;
+
+    /**
+     * Channel records are appended to.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Records waiting to be written.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Sequence number of the next record. Equals number of records in the log.
+     */
+    private long sequence;
+
+    /**
+     * Writes buffered records every maximum delay. Null if records are written only when buffer is full or on request.
+     */
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Last failure of the background writer, thrown by the next {@link #append(byte, byte[])}. Null if there is none.
+     */
+    private IOException writeError;
+
+    /**
+     * Constructor. Opens or creates log file and continues sequence numbers after the records already in it.
+     *
+     * @param file Log file.
+     * @param capacity Capacity of the set which writes the log.
+     * @param valueSize Value length of the set which writes the log.
+     * @throws IOException If file cannot be opened or was written by a set of different size.
+     */
+    public ChangeLog(Path file, long capacity, int valueSize) throws IOException {
+        this(file, capacity, valueSize, DEFAULT_GROUP_SIZE);
+    }
+
+    /**
+     * Constructor. Opens or creates log file and continues sequence numbers after the records already in it.
+     *
+     * @param file Log file.
+     * @param capacity Capacity of the set which writes the log.
+     * @param valueSize Value length of the set which writes the log.
+     * @param groupSize Number of records written to the file at once.
+     * @throws IOException If file cannot be opened or was written by a set of different size.
+     */
+    public ChangeLog(Path file, long capacity, int valueSize, int groupSize) throws IOException {
+        this(file, capacity, valueSize, groupSize, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Constructor. Opens or creates log file and continues sequence numbers after the records already in it. Incomplete
+     * record at the end of the file (left by a crash) is cut off.
+     *
+     * @param file Log file.
+     * @param capacity Capacity of the set which writes the log.
+     * @param valueSize Value length of the set which writes the log.
+     * @param groupSize Number of records written to the file at once.
+     * @param maxDelayMillis Maximum time records wait in the buffer before a background thread writes them, or 0 to write
+     *            them only when buffer is full or on {@link #write()} and {@link #flush()}.
+     * @throws IOException If file cannot be opened or was written by a set of different size.
+     */
+    public ChangeLog(Path file, long capacity, int valueSize, int groupSize, long maxDelayMillis) throws IOException {
+        super();
+        this.capacity = capacity;
+        this.valueSize = valueSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ);
+        try {
+            if (channel.size() < FILE_HEADER_SIZE) {
+                // new file, or crash while header was written
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putLong(capacity).putInt(valueSize).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(false);
+            } else {
+                checkHeader(channel, capacity, valueSize);
+            }
+            this.sequence = (channel.size() - FILE_HEADER_SIZE) / recordSize(valueSize);
+            channel.truncate(FILE_HEADER_SIZE + sequence * recordSize(valueSize));
+            channel.position(channel.size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.buffer = ByteBuffer.allocateDirect(groupSize * recordSize(valueSize));
+        if (maxDelayMillis > 0) {
+            writer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ChangeLog-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            writer.scheduleWithFixedDelay(this::writeInBackground, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * Appends record to the log. Record is written to the file when buffer fills up, on {@link #write()} or on
+     * {@link #flush()}. If this method throws, record is not appended and sequence number is not used up.
+     *
+     * @param operation Operation code.
+     * @param value Value of valueSize bytes, or null for {@link #CLEAR}.
+     * @throws IOException If buffer cannot be written or the last background write failed.
+     */
+    public synchronized void append(byte operation, byte[] value) throws IOException {
+        if (value != null && value.length != valueSize) {
+            throw new IllegalArgumentException("Value length must be " + valueSize + ": " + value.length);
+        }
+        if (writeError != null) {
+            IOException e = writeError;
+            writeError = null;
+            throw e;
+        }
+        if (buffer.remaining() < recordSize(valueSize)) {
+            write();
+        }
+        // nothing below can fail, so a record is either appended whole or not at all
+        buffer.put(operation);
+        buffer.putLong(sequence);
+        if (value == null) {
+            buffer.put(new byte[valueSize]);
+        } else {
+            buffer.put(value);
+        }
+        sequence++;
+    }
+
+    /**
+     * Writes all buffered records to the file without forcing them to the storage device. Written records are visible to
+     * {@link HashSet#apply(Path, long)} in other processes on the same host right away, call it often to keep followers
+     * close behind. If writing fails, records which were not written stay in the buffer and are written by the next call.
+     *
+     * @throws IOException If records cannot be written.
+     */
+    public synchronized void write() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Called by {@link writer}. Failure is kept for the next append, records stay in the buffer for the next write.
+     */
+    private synchronized void writeInBackground() {
+        if (buffer.position() > 0 && channel.isOpen()) {
+            try {
+                write();
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered records to the file and forces them to the storage device.
+     *
+     * @throws IOException If records cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        write();
+        channel.force(false);
+    }
+
+    /**
+     * @return Sequence number of the next record.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Capacity of the set which writes the log.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Value length in the log.
+     */
+    public int getValueSize() {
+        return valueSize;
+    }
+
+    /**
+     * Stops background writer, flushes and closes the log.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads file header and checks that log was written by a set of the given size.
+     *
+     * @param channel Log file channel.
+     * @param capacity Expected capacity.
+     * @param valueSize Expected value length.
+     * @throws IOException If header cannot be read or does not match.
+     */
+    static void checkHeader(FileChannel channel, long capacity, int valueSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Log header is incomplete");
+            }
+        }
+        header.flip();
+        long logCapacity = header.getLong();
+        int logValueSize = header.getInt();
+        if (logCapacity != capacity || logValueSize != valueSize) {
+            throw new IOException("Log was written by a set with capacity " + logCapacity + " and value size "
+                    + logValueSize + ", expected " + capacity + " and " + valueSize);
+        }
+    }
+
+    /**
+     * Calculates size of one record.
+     *
+     * @param valueSize Value length.
+     * @return Record size in bytes.
+     */
+    static int recordSize(int valueSize) {
+        return RECORD_HEADER_SIZE + valueSize;
+    }
+
+}
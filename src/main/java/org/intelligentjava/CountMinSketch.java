@@ -0,0 +1,159 @@
+package org.intelligentjava;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Count-min sketch. Estimates how many times a value was added to {@link HashSet}, including values the set already
+ * evicted. Estimate is never lower than the real count and is higher by at most e * N / width with probability
+ * 1 - e^-depth, where N is the total number of adds. Sketches with the same dimensions can be merged.
+ *
+ */
+public class CountMinSketch {
+
+    /** Default number of rows. */
+    private static final int DEFAULT_DEPTH = 4;
+
+    /** Default number of counters in a row. */
+    private static final int DEFAULT_WIDTH = 1 << 16;
+
+    /** Maximum number of counters, so that {@link #toByteArray()} still fits into one array. */
+    static final int MAX_COUNTERS = (Integer.MAX_VALUE - 8) / 8 - 1;
+
+    /**
+     * Number of rows, each with its own hash function.
+     */
+    private final int depth;
+
+    /**
+     * Number of counters in a row.
+     */
+    private final int width;
+
+    /**
+     * Counters of all rows, row after row.
+     */
+    private final long[] counters;
+
+    /**
+     * Constructor with default dimensions (4 x 65536, 2MB).
+     */
+    public CountMinSketch() {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param depth Number of rows.
+     * @param width Number of counters in a row. Depth multiplied by width must not exceed {@link MAX_COUNTERS}.
+     */
+    public CountMinSketch(int depth, int width) {
+        super();
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("Depth and width must be positive: " + depth + ", " + width);
+        }
+        if ((long) depth * width > MAX_COUNTERS) {
+            throw new IllegalArgumentException("Too many counters " + depth + "x" + width + ", maximum is " + MAX_COUNTERS);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth * width];
+    }
+
+    /**
+     * Adds one occurrence of hexadecimal string value.
+     *
+     * @param s Hexadecimal string.
+     */
+    public void add(String s) {
+        offer(HashSet.longHashCode(Converter.convertToArray(s)));
+    }
+
+    /**
+     * Estimates how many times hexadecimal string value was added.
+     *
+     * @param s Hexadecimal string.
+     * @return Count estimate.
+     */
+    public long estimateCount(String s) {
+        long hash = HashSet.longHashCode(Converter.convertToArray(s));
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds one occurrence of value by its 64 bit hash code.
+     *
+     * @param hash Hash code from {@link HashSet#longHashCode(byte[])}.
+     */
+    void offer(long hash) {
+        for (int row = 0; row < depth; row++) {
+            counters[index(hash, row)]++;
+        }
+    }
+
+    /**
+     * Calculates counter index for hash code in a row. Row hash functions are derived from two halves of the hash code.
+     *
+     * @param hash Hash code.
+     * @param row Row.
+     * @return Index in {@link counters}.
+     */
+    private int index(long hash, int row) {
+        int rowHash = (int) hash + row * (int) (hash >>> 32);
+        return row * width + (rowHash & Integer.MAX_VALUE) % width;
+    }
+
+    /**
+     * Merges other sketch into this one. After merge counts are sums of both sketches.
+     *
+     * @param other Sketch with the same dimensions.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge " + other.depth + "x" + other.width + " into " + depth
+                    + "x" + width);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    /**
+     * Serializes sketch: depth and width as ints followed by counters.
+     *
+     * @return Serialized sketch.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + counters.length * 8);
+        buffer.putInt(depth);
+        buffer.putInt(width);
+        buffer.asLongBuffer().put(counters);
+        return buffer.array();
+    }
+
+    /**
+     * Deserializes sketch written by {@link #toByteArray()}.
+     *
+     * @param bytes Serialized sketch.
+     * @return Sketch.
+     */
+    public static CountMinSketch fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CountMinSketch sketch = new CountMinSketch(buffer.getInt(), buffer.getInt());
+        buffer.asLongBuffer().get(sketch.counters);
+        return sketch;
+    }
+
+}
@@ -1,9 +1,16 @@
 package org.intelligentjava;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * This HashSet is more memory efficient than the standard java implementation. It converts hexstrings from string to byte array format 
@@ -22,10 +29,30 @@ public class HashSet implements Set<String> {
     private static final int BYTE_ARRAY_VALUE_SIZE = 16;
 
     /**
-     * Number of elements in hashTable and in data array (same). 
+     * Maximum number of elements. Bucket entries are stored as unsigned 32 bit indexes and -1 (0xFFFFFFFF) marks an empty
+     * place in a bucket, so the largest usable index is 2^32 - 2.
+     */
+    static final long MAX_NB_OF_ELEMENTS = 0xFFFFFFFFL;
+
+    /**
+     * Maximum number of hash codes in {@link hashTable} (largest array JVM can allocate). Larger sets get on average
+     * up to two indexes per bucket, which still fit into the initial bucket.
+     */
+    private static final int MAX_HASH_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+    /** Maximum size in bytes of one data array chunk. */
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Number of elements in data array. 
      * Data array size equals number of elements multiplied by the length of one element.
      */
-    private int nbOfElements;
+    private long nbOfElements;
+
+    /**
+     * Number of hash codes in {@link hashTable}. Equals number of elements unless it is bigger than {@link MAX_HASH_TABLE_SIZE}.
+     */
+    private int hashTableSize;
 
     /**
      * Is true when hashTable is full, and is inserting hash values restarts from index 0. 
@@ -41,12 +68,24 @@ public class HashSet implements Set<String> {
     /**
      * Index where the next value will be put in a data array. After reaching the end of array it restarts to 0.
      */
-    private int currentDataArrayIndex;
+    private long currentDataArrayIndex;
 
     /**
-     * Array where all the byte[] values are kept.
+     * Data array where all the byte[] values are kept. It is split into chunks so it can grow beyond 2^31 bytes. 
+     * Every chunk (except the last one) holds the same power of two number of elements, so element index maps 
+     * to the chunk and position in it with a shift and a mask.
      */
-    private byte[] data;
+    private byte[][] data;
+
+    /**
+     * Element index is shifted right by this number of bits to get the chunk in {@link data}.
+     */
+    private int chunkShift;
+
+    /**
+     * Element index masked with this value gives element position in the chunk.
+     */
+    private long chunkMask;
 
     /**
      * Hash codes table. The first array is a hash code and the second array is a bucket for hash code which has 
@@ -54,40 +93,115 @@ public class HashSet implements Set<String> {
      */
     private int[][] hashTable;
 
+    /**
+     * Is true when every bucket in {@link hashTable} is allocated up front. Empty buckets are then kept instead of removed.
+     */
+    private boolean preallocated;
+
+    /**
+     * Log where all inserts and clears are appended. Null if changes are not logged.
+     */
+    private ChangeLog changeLog;
+
+    /**
+     * Number of change log records the contents of this set correspond to: records appended to {@link changeLog} or 
+     * replayed by {@link #apply(Path, long)}. It is -1 if the set was changed without a log, then no log can be attached.
+     */
+    private long logSequence = 0;
+
+    /**
+     * Buffer {@link #apply(Path, long)} reads log records into. Allocated on the first call and reused.
+     */
+    private ByteBuffer applyBuffer;
+
+    /**
+     * Distinct values counter fed by {@link #add(String)}. Null if not used.
+     */
+    private HyperLogLog cardinalitySketch;
+
+    /**
+     * Frequency sketch fed by {@link #add(String)}. Null if not used.
+     */
+    private CountMinSketch frequencySketch;
+
     /**
      * Constructor. Default length for entry is set to 16.
      * 
      * @param size Maximum number of elements in cache.
      */
-    public HashSet(int size) {
+    public HashSet(long size) {
         this(size, BYTE_ARRAY_VALUE_SIZE);
     }
     
     /**
      * Constructor.
      * 
-     * @param size Maximum number of elements in cache.
+     * @param size Maximum number of elements in cache (up to {@link MAX_NB_OF_ELEMENTS}).
+     * @param valueSize Value length.
+     */
+    public HashSet(long size, int valueSize) {
+        this(size, valueSize, false);
+    }
+
+    /**
+     * Constructor. If preallocate is true all data array chunks and all buckets are allocated up front in parallel threads,
+     * so memory is touched (and zeroed) during construction instead of on first inserts. Each thread touches the memory it 
+     * allocates first, which spreads pages across NUMA nodes when JVM runs with -XX:+UseNUMA. Costs one 
+     * bucket of {@link BUCKET_SIZE} ints per hash code even if it is never used: 32 bytes per hash code with compressed
+     * oops, e.g. 32GB for 1B elements. With a full set about 37% of hash codes stay empty, so roughly a third of that
+     * memory is never used.
+     * 
+     * @param size Maximum number of elements in cache (up to {@link MAX_NB_OF_ELEMENTS}).
      * @param valueSize Value length.
+     * @param preallocate Allocate and touch all memory in constructor.
      */
-    public HashSet(int size, int valueSize) {
+    public HashSet(long size, int valueSize, boolean preallocate) {
         super();
+        if (size < 1 || size > MAX_NB_OF_ELEMENTS) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_NB_OF_ELEMENTS + ": " + size);
+        }
+        if (valueSize < 1 || valueSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Value size must be between 1 and " + MAX_CHUNK_SIZE + ": " + valueSize);
+        }
         this.valueSize = valueSize;
         this.nbOfElements = size;
-        hashTable = new int[nbOfElements][];
-        int tableSize = size*valueSize;
-        data = new byte[tableSize];
+        hashTableSize = (int) Math.min(size, MAX_HASH_TABLE_SIZE);
+        hashTable = new int[hashTableSize][];
+        // biggest power of two number of elements which still fits into one chunk
+        chunkShift = 31 - Integer.numberOfLeadingZeros(MAX_CHUNK_SIZE / valueSize);
+        chunkMask = (1L << chunkShift) - 1;
+        int nbOfChunks = (int) ((size + chunkMask) >>> chunkShift);
+        data = new byte[nbOfChunks][];
+        this.preallocated = preallocate;
+        IntStream chunks = IntStream.range(0, nbOfChunks);
+        (preallocate ? chunks.parallel() : chunks).forEach(i -> {
+            long elementsInChunk = Math.min(1L << chunkShift, size - ((long) i << chunkShift));
+            data[i] = new byte[(int) elementsInChunk * valueSize];
+        });
+        if (preallocate) {
+            IntStream.range(0, hashTableSize).parallel().forEach(i -> hashTable[i] = newBucket());
+        }
     }
     
     /**
-     * Add value to hash table. Converts hexadecimal string to byte[] array first.
+     * Add value to hash table. Converts hexadecimal string to byte[] array first. 64 bit hash code is calculated once and
+     * used both by sketches and by the hash table.
      */
     public boolean add(String s) {
     	// convert to byte array first
         byte[] hashValue = Converter.convertToArray(s);
-        if (contains(hashValue)) {
+        long longHashCode = longHashCode(hashValue);
+        if (cardinalitySketch != null) {
+            cardinalitySketch.offer(longHashCode);
+        }
+        if (frequencySketch != null) {
+            frequencySketch.offer(longHashCode);
+        }
+        int hashCode = hashCode(longHashCode);
+        if (contains(hashValue, hashCode)) {
             return false;
         }
-        insert(hashValue);
+        insert(hashValue, hashCode);
         return true;
     }
     
@@ -110,12 +224,26 @@ public class HashSet implements Set<String> {
      *         otherwise.
      */
     private boolean contains(byte[] element) {
-        int hashCode = hashCode(element);
+        return contains(element, hashCode(element));
+    }
+
+    /**
+     * Finds out if the same value is already in a hash table.
+     * 
+     * @param element
+     *            element which we compare with other values with same
+     *            hashCode.
+     * @param hashCode
+     *            Hash code of the element.
+     * @return true if same hash value in hash table is found and false
+     *         otherwise.
+     */
+    private boolean contains(byte[] element, int hashCode) {
         if (hashTable[hashCode] != null) {
             int[] indexesBucket = (int[]) hashTable[hashCode];
             int i = 0;
             while (i < indexesBucket.length && indexesBucket[i] != -1) {
-                if (Arrays.equals(element, getValue(indexesBucket[i]))) {
+                if (valueEquals(Integer.toUnsignedLong(indexesBucket[i]), element)) {
                     return true;
                 }
                 i++;
@@ -132,8 +260,20 @@ public class HashSet implements Set<String> {
      * Clears hash table.
      */
     public void clear() {
+        log(ChangeLog.CLEAR, null);
         isFilled = false;
-        Arrays.fill(hashTable, null);
+        if (preallocated) {
+            // keep buckets allocated, but drop the ones that grew
+            IntStream.range(0, hashTableSize).parallel().forEach(i -> {
+                if (hashTable[i].length > BUCKET_SIZE) {
+                    hashTable[i] = newBucket();
+                } else {
+                    Arrays.fill(hashTable[i], -1);
+                }
+            });
+        } else {
+            Arrays.fill(hashTable, null);
+        }
         currentDataArrayIndex = 0;
     }
     
@@ -143,8 +283,11 @@ public class HashSet implements Set<String> {
      * @return Array of hashes represented as String.
      */
     public Object[] toArray() {
-        int numberOfElements = isFilled ? nbOfElements : currentDataArrayIndex;
-        Object[] hashes = new Object[numberOfElements];
+        long numberOfElements = longSize();
+        if (numberOfElements > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many elements to fit into an array: " + numberOfElements);
+        }
+        Object[] hashes = new Object[(int) numberOfElements];
         for (int i = 0; i < numberOfElements; i++) {
             byte[] hashValue = getValue(i);
             if (hashValue != null) {
@@ -155,13 +298,173 @@ public class HashSet implements Set<String> {
     }
     
     /**
-     * Returns the number of elements in this set.
+     * Returns the number of elements in this set or {@link Integer#MAX_VALUE} if there are more elements than that.
      * 
      * @return Number of elements.
      */
     public int size() {
+        return (int) Math.min(longSize(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     * 
+     * @return Number of elements.
+     */
+    public long longSize() {
         return isFilled ? nbOfElements : currentDataArrayIndex;
     }
+
+    /**
+     * Calculates memory used by data array (all chunks), {@link hashTable} and all buckets. Does not include this object 
+     * itself, change log and sketches.
+     * 
+     * @return Memory usage in bytes.
+     */
+    public long memoryUsage() {
+        long bytes = MemoryLayout.arraySize(MemoryLayout.REFERENCE_SIZE, data.length);
+        for (byte[] chunk : data) {
+            bytes += MemoryLayout.arraySize(1, chunk.length);
+        }
+        bytes += MemoryLayout.arraySize(MemoryLayout.REFERENCE_SIZE, hashTable.length);
+        for (int[] bucket : hashTable) {
+            if (bucket != null) {
+                bytes += MemoryLayout.arraySize(4, bucket.length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Sets distinct values counter which is fed with every value passed to {@link #add(String)}, including duplicates and
+     * values evicted later.
+     * 
+     * @param cardinalitySketch Counter, or null to stop counting.
+     */
+    public void setCardinalitySketch(HyperLogLog cardinalitySketch) {
+        this.cardinalitySketch = cardinalitySketch;
+    }
+
+    /**
+     * Sets frequency sketch which is fed with every value passed to {@link #add(String)}, including duplicates and values 
+     * evicted later.
+     * 
+     * @param frequencySketch Sketch, or null to stop counting.
+     */
+    public void setFrequencySketch(CountMinSketch frequencySketch) {
+        this.frequencySketch = frequencySketch;
+    }
+
+    /**
+     * Sets log where all further inserts and clears of this set are appended. Log is not closed or flushed by the set.
+     * Followers evict the same values only if the set holds exactly what the log holds, so a new log can be attached only
+     * to a new set, and a log which already has records (e.g. after restart) only to a set which replayed all of them
+     * with {@link #apply(Path)}.
+     * 
+     * @param changeLog Log with the same capacity and value size, or null to stop logging.
+     * @throws IllegalArgumentException If log size does not match or set contents do not match log records.
+     */
+    public void setChangeLog(ChangeLog changeLog) {
+        if (changeLog != null && (changeLog.getCapacity() != nbOfElements || changeLog.getValueSize() != valueSize)) {
+            throw new IllegalArgumentException("Log capacity " + changeLog.getCapacity() + " and value size " 
+                    + changeLog.getValueSize() + " do not match set capacity " + nbOfElements + " and value size " + valueSize);
+        }
+        if (changeLog != null && changeLog.getSequence() != logSequence) {
+            throw new IllegalArgumentException("Log has " + changeLog.getSequence() + " records, but set "
+                    + (logSequence == -1 ? "was changed without a log" : "replayed " + logSequence)
+                    + ", replay the log into a new set first");
+        }
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Appends change to {@link changeLog} if it is set. Called before the set is changed, so if logging fails the set 
+     * stays as it was.
+     * 
+     * @param operation Operation code.
+     * @param value Changed value.
+     */
+    private void log(byte operation, byte[] value) {
+        if (changeLog != null) {
+            try {
+                changeLog.append(operation, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            logSequence = changeLog.getSequence();
+        } else {
+            logSequence = -1;
+        }
+    }
+
+    /**
+     * Replays change log into this set starting from the given sequence number. Evictions are not logged because this
+     * set has the same capacity and evicts the same values itself when inserts are replayed in the same order. Incomplete
+     * record at the end of the log (still being written) is left for the next call. Set must not have a change log of
+     * its own while log is replayed.
+     * 
+     * @param log Log file written by {@link ChangeLog} of a set with the same capacity and value size.
+     * @param fromSequence Sequence number of the first record to apply.
+     * @return Sequence number of the next record to apply.
+     * @throws IOException If log cannot be read, was written by a set of different size or has unexpected sequence 
+     *             numbers or operation codes.
+     */
+    public long apply(Path log, long fromSequence) throws IOException {
+        if (changeLog != null) {
+            throw new IllegalStateException("Cannot replay log into a set which has a change log");
+        }
+        boolean inSync = logSequence == fromSequence;
+        int recordSize = ChangeLog.recordSize(valueSize);
+        long sequence = fromSequence;
+        byte[] value = new byte[valueSize];
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            ChangeLog.checkHeader(channel, nbOfElements, valueSize);
+            channel.position(ChangeLog.FILE_HEADER_SIZE + fromSequence * recordSize);
+            if (applyBuffer == null) {
+                applyBuffer = ByteBuffer.allocateDirect(4096 * recordSize);
+            }
+            ByteBuffer buffer = applyBuffer;
+            buffer.clear();
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= recordSize) {
+                    byte operation = buffer.get();
+                    long recordSequence = buffer.getLong();
+                    if (recordSequence != sequence) {
+                        throw new IOException("Expected sequence number " + sequence + " but was " + recordSequence);
+                    }
+                    buffer.get(value);
+                    if (operation == ChangeLog.ADD) {
+                        int hashCode = hashCode(value);
+                        if (!contains(value, hashCode)) {
+                            insert(value, hashCode);
+                        }
+                    } else if (operation == ChangeLog.CLEAR) {
+                        clear();
+                    } else {
+                        throw new IOException("Unknown operation code " + operation + " in record " + sequence);
+                    }
+                    sequence++;
+                }
+                buffer.compact();
+            }
+        } finally {
+            logSequence = inSync ? sequence : -1;
+        }
+        return sequence;
+    }
+
+    /**
+     * Replays whole change log into this set.
+     * 
+     * @param log Log file written by {@link ChangeLog} of a set with the same capacity and value size.
+     * @return Sequence number of the next record to apply.
+     * @throws IOException If log cannot be read, was written by a set of different size or has unexpected sequence 
+     *             numbers or operation codes.
+     */
+    public long apply(Path log) throws IOException {
+        return apply(log, 0);
+    }
     
     /**
      * Gets value by index from data array.
@@ -169,9 +472,9 @@ public class HashSet implements Set<String> {
      * @param index Value index in hashTable.
      * @return Value.
      */
-    private byte[] getValue(int index) {
+    private byte[] getValue(long index) {
         byte[] value = new byte[valueSize];
-        System.arraycopy(data, index*valueSize, value, 0, valueSize);
+        System.arraycopy(data[(int) (index >>> chunkShift)], (int) (index & chunkMask) * valueSize, value, 0, valueSize);
         return value;
     }
     
@@ -181,8 +484,29 @@ public class HashSet implements Set<String> {
      * @param index Index where value should be put.
      * @param value Value to set.
      */
-    private void setValue(int index, byte[] value) {
-        System.arraycopy(value, 0, data, index*valueSize, valueSize);
+    private void setValue(long index, byte[] value) {
+        System.arraycopy(value, 0, data[(int) (index >>> chunkShift)], (int) (index & chunkMask) * valueSize, valueSize);
+    }
+
+    /**
+     * Compares value in data array with provided value without copying it out of data array.
+     * 
+     * @param index Value index in hashTable.
+     * @param value Value to compare with.
+     * @return True if values are equal.
+     */
+    private boolean valueEquals(long index, byte[] value) {
+        if (value.length != valueSize) {
+            return false;
+        }
+        byte[] chunk = data[(int) (index >>> chunkShift)];
+        int offset = (int) (index & chunkMask) * valueSize;
+        for (int i = 0; i < valueSize; i++) {
+            if (chunk[offset + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
     }
     
 
@@ -191,21 +515,37 @@ public class HashSet implements Set<String> {
      * 
      * @param value
      *            Value to insert.
+     * @throws IllegalArgumentException If value length is not valueSize. Set and change log stay unchanged then.
      */
     private void insert(byte[] value) {
+        insert(value, hashCode(value));
+    }
+
+    /**
+     * Inserts  value to {@link data} array and pointers to it to {@link hashTable}.
+     * 
+     * @param value
+     *            Value to insert.
+     * @param hashCode
+     *            Hash code of the value.
+     * @throws IllegalArgumentException If value length is not valueSize. Set and change log stay unchanged then.
+     */
+    private void insert(byte[] value, int hashCode) {
+        if (value.length != valueSize) {
+            throw new IllegalArgumentException("Value length must be " + valueSize + ": " + value.length);
+        }
+        log(ChangeLog.ADD, value);
 
     	// once hash table is full new value overwrites old value in data array, for that reason pointer in hashTable to old value is removed
         if (isFilled)
             removeIndexFromHashTable(currentDataArrayIndex);
 
-        int hashCode = hashCode(value);
         setValue(currentDataArrayIndex, value);
 
         if (hashTable[hashCode] == null) {
-            int[] newIndexesBucket = new int[BUCKET_SIZE];
-            Arrays.fill(newIndexesBucket, -1);
+            int[] newIndexesBucket = newBucket();
             hashTable[hashCode] = newIndexesBucket;
-            newIndexesBucket[0] = currentDataArrayIndex;
+            newIndexesBucket[0] = (int) currentDataArrayIndex;
         } else {
             int[] indexesBucket = (int[]) hashTable[hashCode];
             int index = emptySpaceIndex(indexesBucket);
@@ -215,7 +555,7 @@ public class HashSet implements Set<String> {
                 hashTable[hashCode] = indexesBucket;
                 index = emptySpaceIndex(indexesBucket);
             }
-            indexesBucket[index] = currentDataArrayIndex;
+            indexesBucket[index] = (int) currentDataArrayIndex;
         }
         currentDataArrayIndex++;
         if (currentDataArrayIndex >= nbOfElements) {
@@ -231,15 +571,17 @@ public class HashSet implements Set<String> {
      * @param index
      *            Index to remove.
      */
-    private void removeIndexFromHashTable(int index) {
+    private void removeIndexFromHashTable(long index) {
         int hashCode = hashCode(getValue(index));
         int[] indexesBucket = (int[]) hashTable[hashCode];
         if (indexesBucket != null) {
+            // indexes are kept in buckets as unsigned ints
+            int bucketValue = (int) index;
             int i = 0;
-            while ((i < indexesBucket.length) && (indexesBucket[i] != -1 && indexesBucket[i] != index)) {
+            while ((i < indexesBucket.length) && (indexesBucket[i] != -1 && indexesBucket[i] != bucketValue)) {
                 i++;
             }
-            if (i == indexesBucket.length || indexesBucket[i] == index) {
+            if (i == indexesBucket.length || indexesBucket[i] == bucketValue) {
                 int lastElementIndex = lastElementIndex(indexesBucket);
                 // if bucket is full take last element
                 if (lastElementIndex == -1) {
@@ -277,13 +619,24 @@ public class HashSet implements Set<String> {
                 return resizeBucket(bucket, -1 * BUCKET_RESIZE_BY);
             }
         } else {
-            if (isBucketEmty(bucket)) {
+            if (!preallocated && isBucketEmty(bucket)) {
                 return null;
             }
         }
         return bucket;
     }
 
+    /**
+     * Creates new empty bucket.
+     * 
+     * @return Bucket of {@link BUCKET_SIZE} filled with -1.
+     */
+    private int[] newBucket() {
+        int[] bucket = new int[BUCKET_SIZE];
+        Arrays.fill(bucket, -1);
+        return bucket;
+    }
+
     /**
      * Checks is bucket is empty.
      * 
@@ -355,26 +708,51 @@ public class HashSet implements Set<String> {
     }
 
     /**
-     * Prime numbers used for hash code calculation.
-     */
-    private static int[] PRIMES = { 244217, 244219, 244243, 244247, 244253, 244261, 244291, 244297, 244301, 244303,
-            244313, 244333, 244339, 244351, 244357, 244367 };
-    
-    /**
-     * Calculates hash code for provided hash value represented as byte array.
+     * Calculates hash code for provided hash value represented as byte array. Takes upper 32 bits of 
+     * {@link #longHashCode(byte[])} and maps them to [0, hashTableSize) with multiply and shift, so all hash codes
+     * in the table are used evenly whatever the table size is.
      * 
      * @param hashValue
      *            Sequence of bytes that represents hash value.
      * @return HashCode.
      */
     private int hashCode(byte[] value) {
-        int hash = 1;
+        return hashCode(longHashCode(value));
+    }
+
+    /**
+     * Maps 64 bit hash code to [0, hashTableSize).
+     * 
+     * @param longHashCode
+     *            Hash code from {@link #longHashCode(byte[])}.
+     * @return HashCode.
+     */
+    private int hashCode(long longHashCode) {
+        return (int) (((longHashCode >>> 32) * hashTableSize) >>> 32);
+    }
+
+    /**
+     * Calculates 64 bit hash code used by hash table and sketches. Values are usually hashes themselves, but some bytes 
+     * can be fixed (e.g. uuid version), so all bytes are folded into a long and mixed (MurmurHash3 finalizer).
+     * 
+     * @param value
+     *            Sequence of bytes that represents hash value.
+     * @return 64 bit hash code.
+     */
+    static long longHashCode(byte[] value) {
+        long hash = value.length;
         for (int i = 0; i < value.length; i++) {
-            int unsignedByte = value[i] < 0 ? ((int) (-1 * value[i])) : value[i];
-            int primeNumberIndex = i < PRIMES.length ? i : i % PRIMES.length;
-            hash += unsignedByte * PRIMES[primeNumberIndex];
+            hash ^= (value[i] & 0xFFL) << ((i & 7) << 3);
+            if ((i & 7) == 7) {
+                hash *= 0xC2B2AE3D27D4EB4FL;
+            }
         }
-        return hash % nbOfElements;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
 	@Override
@@ -0,0 +1,168 @@
+package org.intelligentjava;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct values counter. Estimates number of distinct values ever added to {@link HashSet}, even after the
+ * set evicted them. Uses 2^precision one byte registers and has relative error about 1.04 / sqrt(2^precision), e.g. 0.8%
+ * for the default precision 14 (16KB). Counters with the same precision can be merged, so shards can be counted together.
+ *
+ */
+public class HyperLogLog {
+
+    /** Default precision. */
+    private static final int DEFAULT_PRECISION = 14;
+
+    /** Minimum precision. */
+    private static final int MIN_PRECISION = 4;
+
+    /** Maximum precision. */
+    private static final int MAX_PRECISION = 18;
+
+    /**
+     * Number of hash bits used to select the register.
+     */
+    private final int precision;
+
+    /**
+     * Registers. Each keeps the largest position of the first one bit seen in the hashes selecting it.
+     */
+    private final byte[] registers;
+
+    /**
+     * Constructor with default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param precision Number of hash bits used to select the register (4 to 18).
+     */
+    public HyperLogLog(int precision) {
+        super();
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION
+                    + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds hexadecimal string value.
+     *
+     * @param s Hexadecimal string.
+     */
+    public void add(String s) {
+        offer(HashSet.longHashCode(Converter.convertToArray(s)));
+    }
+
+    /**
+     * Adds value by its 64 bit hash code.
+     *
+     * @param hash Hash code from {@link HashSet#longHashCode(byte[])}.
+     */
+    void offer(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // sentinel bit limits the rank when all remaining bits are zeros
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Estimates number of distinct values added.
+     *
+     * @return Cardinality estimate.
+     */
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            sum += 1.0 / (1L << registers[i]);
+            if (registers[i] == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // small range correction
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges other counter into this one. After merge this counter estimates distinct values added to any of them.
+     *
+     * @param other Counter with the same precision.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge precision " + other.precision + " into " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Forgets all added values.
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    /**
+     * Serializes counter: one byte precision followed by registers.
+     *
+     * @return Serialized counter.
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + registers.length);
+        buffer.put((byte) precision);
+        buffer.put(registers);
+        return buffer.array();
+    }
+
+    /**
+     * Deserializes counter written by {@link #toByteArray()}.
+     *
+     * @param bytes Serialized counter.
+     * @return Counter.
+     */
+    public static HyperLogLog fromByteArray(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog hyperLogLog = new HyperLogLog(buffer.get());
+        buffer.get(hyperLogLog.registers);
+        return hyperLogLog;
+    }
+
+    /**
+     * Bias correction constant.
+     *
+     * @param m Number of registers.
+     * @return Constant.
+     */
+    private static double alpha(int m) {
+        switch (m) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+}
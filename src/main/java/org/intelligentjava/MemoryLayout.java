@@ -0,0 +1,57 @@
+package org.intelligentjava;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Array sizes in JVM memory. HotSpot array layout is: mark word (8 bytes), class pointer (4 bytes compressed, 8 otherwise)
+ * and length (4 bytes), padded to 24 bytes without compressed class pointers. Elements follow and the whole array is
+ * aligned to -XX:ObjectAlignmentInBytes. Flags are read from HotSpot diagnostic bean, defaults of 64 bit HotSpot are used
+ * on other JVMs.
+ *
+ */
+final class MemoryLayout {
+
+    /** Array header size (offset of the first element). */
+    static final int ARRAY_HEADER_SIZE;
+
+    /** Reference size (4 with compressed oops and 8 otherwise). */
+    static final int REFERENCE_SIZE;
+
+    /** Object alignment. */
+    static final int OBJECT_ALIGNMENT;
+
+    static {
+        boolean compressedOops = true;
+        boolean compressedClassPointers = true;
+        int objectAlignment = 8;
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            compressedOops = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+            compressedClassPointers = Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedClassPointers").getValue());
+            objectAlignment = Integer.parseInt(hotSpot.getVMOption("ObjectAlignmentInBytes").getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // not HotSpot, keep defaults
+        }
+        ARRAY_HEADER_SIZE = compressedClassPointers ? 16 : 24;
+        REFERENCE_SIZE = compressedOops ? 4 : 8;
+        OBJECT_ALIGNMENT = objectAlignment;
+    }
+
+    private MemoryLayout() {
+    }
+
+    /**
+     * Calculates memory used by an array.
+     * 
+     * @param elementSize Size of one element.
+     * @param length Array length.
+     * @return Array size in bytes including header and alignment.
+     */
+    static long arraySize(int elementSize, int length) {
+        long size = ARRAY_HEADER_SIZE + (long) elementSize * length;
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.intelligentjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncHashSetTest {
+
+    @Test
+    public void testAddAndContains() throws InterruptedException, ExecutionException {
+        try (AsyncHashSet asyncSet = new AsyncHashSet(new HashSet(50))) {
+            String value1 = UUID.randomUUID().toString().replaceAll("-", "");
+            String value2 = UUID.randomUUID().toString().replaceAll("-", "");
+            Assert.assertTrue(asyncSet.addAsync(value1).get());
+            Assert.assertFalse(asyncSet.addAsync(value1).get());
+            Assert.assertTrue(asyncSet.containsAsync(value1).get());
+            Assert.assertFalse(asyncSet.containsAsync(value2).get());
+            Assert.assertEquals(asyncSet.getProcessedCount(), 4);
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws InterruptedException, ExecutionException {
+        int threads = 8;
+        int valuesPerThread = 1000;
+        HashSet set = new HashSet(threads * valuesPerThread);
+        try (AsyncHashSet asyncSet = new AsyncHashSet(set, threads * valuesPerThread, 64)) {
+            List<List<CompletableFuture<Boolean>>> results = new ArrayList<>();
+            List<Thread> workers = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                List<CompletableFuture<Boolean>> threadResults = new ArrayList<>();
+                results.add(threadResults);
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < valuesPerThread; i++) {
+                        threadResults.add(asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", "")));
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            for (List<CompletableFuture<Boolean>> threadResults : results) {
+                for (CompletableFuture<Boolean> result : threadResults) {
+                    Assert.assertTrue(result.get());
+                }
+            }
+            Assert.assertEquals(asyncSet.getProcessedCount(), threads * valuesPerThread);
+            Assert.assertTrue(asyncSet.getBatchCount() <= threads * valuesPerThread);
+            Assert.assertTrue(asyncSet.getMaxLatencyNanos() >= asyncSet.getAverageLatencyNanos());
+        }
+        Assert.assertEquals(set.size(), threads * valuesPerThread);
+    }
+
+    @Test
+    public void testRejectedWhenClosed() throws InterruptedException {
+        AsyncHashSet asyncSet = new AsyncHashSet(new HashSet(50));
+        asyncSet.close();
+        CompletableFuture<Boolean> result = asyncSet.addAsync("112233445566778899aabbccddeefff0");
+        try {
+            result.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testRejectedWhenQueueIsFull() throws InterruptedException, ExecutionException {
+        CountDownLatch addStarted = new CountDownLatch(1);
+        CountDownLatch addReleased = new CountDownLatch(1);
+        HashSet blockingSet = new HashSet(50) {
+            @Override
+            public boolean add(String s) {
+                addStarted.countDown();
+                try {
+                    addReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.add(s);
+            }
+        };
+        try (AsyncHashSet asyncSet = new AsyncHashSet(blockingSet, 1, 16)) {
+            CompletableFuture<Boolean> first = asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""));
+            addStarted.await();
+            // owner thread is busy with the first request, queue has space for one more
+            CompletableFuture<Boolean> second = asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""));
+            CompletableFuture<Boolean> third = asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""));
+            Assert.assertTrue(third.isCompletedExceptionally());
+            Assert.assertEquals(asyncSet.getRejectedCount(), 1);
+            Assert.assertEquals(asyncSet.getQueueSize(), 1);
+            addReleased.countDown();
+            Assert.assertTrue(first.get());
+            Assert.assertTrue(second.get());
+        }
+    }
+
+    @Test
+    public void testCloseFromCallback() throws InterruptedException, ExecutionException, TimeoutException {
+        AsyncHashSet asyncSet = new AsyncHashSet(new HashSet(50));
+        CompletableFuture<String> callbackThread = asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""))
+                .thenApply(added -> {
+                    asyncSet.close();
+                    return Thread.currentThread().getName();
+                });
+        Assert.assertNotEquals(callbackThread.get(10, TimeUnit.SECONDS), "AsyncHashSet-owner");
+        Assert.assertTrue(asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""))
+                .isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCloseFromOwnerThread() throws InterruptedException, ExecutionException, TimeoutException {
+        // completion executor runs callbacks on the owner thread
+        AsyncHashSet asyncSet = new AsyncHashSet(new HashSet(50), 16, 16, Runnable::run);
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+        asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", "")).thenAccept(added -> {
+            asyncSet.close();
+            first.complete(added);
+        });
+        Assert.assertTrue(first.get(10, TimeUnit.SECONDS));
+        asyncSet.close();
+        Assert.assertTrue(asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", ""))
+                .isCompletedExceptionally());
+    }
+
+    @Test
+    public void testErrorDoesNotStopOwner() throws InterruptedException, ExecutionException {
+        HashSet failingSet = new HashSet(50) {
+            @Override
+            public boolean add(String s) {
+                if (s.isEmpty()) {
+                    throw new AssertionError("empty value");
+                }
+                return super.add(s);
+            }
+        };
+        try (AsyncHashSet asyncSet = new AsyncHashSet(failingSet)) {
+            CompletableFuture<Boolean> failed = asyncSet.addAsync("");
+            try {
+                failed.get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof AssertionError);
+            }
+            Assert.assertTrue(asyncSet.addAsync(UUID.randomUUID().toString().replaceAll("-", "")).get());
+        }
+    }
+
+}
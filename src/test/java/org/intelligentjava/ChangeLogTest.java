@@ -0,0 +1,312 @@
+package org.intelligentjava;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChangeLogTest {
+
+    @Test
+    public void testReplay() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            int size = 50;
+            HashSet leader = new HashSet(size);
+            String[] values = new String[size * 2];
+            try (ChangeLog log = new ChangeLog(file, size, 16, 8)) {
+                leader.setChangeLog(log);
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = UUID.randomUUID().toString().replaceAll("-", "");
+                    leader.add(values[i]);
+                }
+                // evictions after the ring wrapped are not logged
+                Assert.assertEquals(log.getSequence(), 100);
+            }
+            Assert.assertEquals(Files.size(file), ChangeLog.FILE_HEADER_SIZE + 100 * (ChangeLog.RECORD_HEADER_SIZE + 16));
+
+            HashSet follower = new HashSet(size);
+            Assert.assertEquals(follower.apply(file), 100);
+            Assert.assertEquals(follower.size(), size);
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(follower.contains(values[i]), leader.contains(values[i]));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testIncrementalReplay() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            HashSet leader = new HashSet(50);
+            HashSet follower = new HashSet(50);
+            String value1 = UUID.randomUUID().toString().replaceAll("-", "");
+            String value2 = UUID.randomUUID().toString().replaceAll("-", "");
+            try (ChangeLog log = new ChangeLog(file, 50, 16, 4096, 0)) {
+                leader.setChangeLog(log);
+                leader.add(value1);
+                // not visible until written
+                Assert.assertEquals(follower.apply(file), 0);
+                log.write();
+                long sequence = follower.apply(file);
+                Assert.assertEquals(sequence, 1);
+                Assert.assertTrue(follower.contains(value1));
+
+                leader.clear();
+                leader.add(value2);
+                log.flush();
+                Assert.assertEquals(follower.apply(file, sequence), 3);
+                Assert.assertFalse(follower.contains(value1));
+                Assert.assertTrue(follower.contains(value2));
+            }
+            // reopened log continues sequence numbers
+            try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+                Assert.assertEquals(log.getSequence(), 3);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBackgroundWrite() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            HashSet leader = new HashSet(50);
+            HashSet follower = new HashSet(50);
+            String value = UUID.randomUUID().toString().replaceAll("-", "");
+            try (ChangeLog log = new ChangeLog(file, 50, 16, 4096, 1)) {
+                leader.setChangeLog(log);
+                leader.add(value);
+                long sequence = 0;
+                for (int i = 0; i < 1000 && sequence == 0; i++) {
+                    Thread.sleep(5);
+                    sequence = follower.apply(file);
+                }
+                Assert.assertEquals(sequence, 1);
+                Assert.assertTrue(follower.contains(value));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnknownOperation() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            new ChangeLog(file, 50, 16).close();
+            byte[] record = new byte[ChangeLog.recordSize(16)];
+            record[0] = 7;
+            Files.write(file, record, StandardOpenOption.APPEND);
+            try {
+                new HashSet(50).apply(file);
+                Assert.fail();
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Crash in the middle of a record write leaves part of it at the end of the file.
+     */
+    @Test
+    public void testReopenAfterPartialRecord() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            HashSet leader = new HashSet(50);
+            String value1 = UUID.randomUUID().toString().replaceAll("-", "");
+            String value2 = UUID.randomUUID().toString().replaceAll("-", "");
+            try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+                leader.setChangeLog(log);
+                leader.add(value1);
+            }
+            Files.write(file, new byte[] { ChangeLog.ADD, 0, 0, 0, 0, 0 }, StandardOpenOption.APPEND);
+
+            try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+                Assert.assertEquals(log.getSequence(), 1);
+                Assert.assertEquals(Files.size(file), ChangeLog.FILE_HEADER_SIZE + ChangeLog.recordSize(16));
+                leader.setChangeLog(log);
+                leader.add(value2);
+            }
+
+            HashSet follower = new HashSet(50);
+            Assert.assertEquals(follower.apply(file), 2);
+            Assert.assertTrue(follower.contains(value1));
+            Assert.assertTrue(follower.contains(value2));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFailedLogLeavesSetUnchanged() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            HashSet leader = new HashSet(50);
+            ChangeLog log = new ChangeLog(file, 50, 16, 1);
+            leader.setChangeLog(log);
+            leader.add(UUID.randomUUID().toString().replaceAll("-", ""));
+            log.close();
+            // fits into the now empty buffer
+            leader.add(UUID.randomUUID().toString().replaceAll("-", ""));
+            String value = UUID.randomUUID().toString().replaceAll("-", "");
+            try {
+                leader.add(value);
+                Assert.fail();
+            } catch (UncheckedIOException e) {
+                // expected, channel is closed
+            }
+            Assert.assertFalse(leader.contains(value));
+            Assert.assertEquals(leader.size(), 2);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Restarted leader replays its own log before it continues writing it, so followers evict the same values.
+     */
+    @Test
+    public void testRestart() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            int size = 50;
+            String[] values = new String[size * 3];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = UUID.randomUUID().toString().replaceAll("-", "");
+            }
+            try (ChangeLog log = new ChangeLog(file, size, 16)) {
+                HashSet leader = new HashSet(size);
+                leader.setChangeLog(log);
+                for (int i = 0; i < size + 10; i++) {
+                    leader.add(values[i]);
+                }
+            }
+
+            HashSet leader = new HashSet(size);
+            try (ChangeLog log = new ChangeLog(file, size, 16)) {
+                try {
+                    leader.setChangeLog(log);
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // expected, set is behind the log
+                }
+                Assert.assertEquals(leader.apply(file), size + 10);
+                leader.setChangeLog(log);
+                for (int i = size + 10; i < values.length; i++) {
+                    leader.add(values[i]);
+                }
+            }
+
+            HashSet follower = new HashSet(size);
+            Assert.assertEquals(follower.apply(file), values.length);
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(follower.contains(values[i]), leader.contains(values[i]));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testNonEmptySet() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+            HashSet set = new HashSet(50);
+            set.add(UUID.randomUUID().toString().replaceAll("-", ""));
+            try {
+                set.setChangeLog(log);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                // expected, log does not have the value
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWrongValueLength() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            HashSet leader = new HashSet(50);
+            String value1 = UUID.randomUUID().toString().replaceAll("-", "");
+            String value2 = UUID.randomUUID().toString().replaceAll("-", "");
+            try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+                leader.setChangeLog(log);
+                leader.add(value1);
+                try {
+                    // 15 bytes
+                    leader.add(value2.substring(2));
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+                try {
+                    log.append(ChangeLog.ADD, new byte[15]);
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+                Assert.assertEquals(log.getSequence(), 1);
+                leader.add(value2);
+            }
+            Assert.assertEquals(leader.size(), 2);
+
+            HashSet follower = new HashSet(50);
+            Assert.assertEquals(follower.apply(file), 2);
+            Assert.assertEquals(follower.size(), 2);
+            Assert.assertTrue(follower.contains(value1));
+            Assert.assertTrue(follower.contains(value2));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSizeMismatch() throws IOException {
+        Path file = Files.createTempFile("changelog", ".bin");
+        try {
+            try (ChangeLog log = new ChangeLog(file, 50, 16)) {
+                try {
+                    new HashSet(50, 20).setChangeLog(log);
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+                try {
+                    new HashSet(60).setChangeLog(log);
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // expected
+                }
+            }
+            try {
+                new HashSet(60).apply(file);
+                Assert.fail();
+            } catch (IOException e) {
+                // expected
+            }
+            try {
+                new ChangeLog(file, 50, 20).close();
+                Assert.fail();
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
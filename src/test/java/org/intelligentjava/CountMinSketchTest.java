@@ -0,0 +1,50 @@
+package org.intelligentjava;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimateCount() {
+        int size = 50;
+        HashSet cache = new HashSet(size);
+        CountMinSketch sketch = new CountMinSketch();
+        cache.setFrequencySketch(sketch);
+        String frequent = UUID.randomUUID().toString().replaceAll("-", "");
+        for (int i = 0; i < 1000; i++) {
+            cache.add(UUID.randomUUID().toString().replaceAll("-", ""));
+            if (i % 10 == 0) {
+                cache.add(frequent);
+            }
+        }
+        Assert.assertTrue(sketch.estimateCount(frequent) >= 100);
+        Assert.assertTrue(sketch.estimateCount(frequent) < 110);
+        Assert.assertEquals(sketch.estimateCount(UUID.randomUUID().toString().replaceAll("-", "")), 0, 5);
+    }
+
+    @Test
+    public void testMergeAndSerialize() {
+        CountMinSketch shard1 = new CountMinSketch(4, 1024);
+        CountMinSketch shard2 = new CountMinSketch(4, 1024);
+        String value = "112233445566778899aabbccddeefff0";
+        shard1.add(value);
+        shard2.add(value);
+        shard2.add(value);
+        shard1.merge(CountMinSketch.fromByteArray(shard2.toByteArray()));
+        Assert.assertEquals(shard1.estimateCount(value), 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentDimensions() {
+        new CountMinSketch(4, 1024).merge(new CountMinSketch(4, 2048));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyCounters() {
+        new CountMinSketch(4, 1 << 29);
+    }
+
+}
@@ -16,7 +16,7 @@ public class HashSetTest {
     public void testRemoveIndexFromHashCodesTable() throws SecurityException, NoSuchMethodException, IllegalArgumentException,
             IllegalAccessException, InvocationTargetException, NoSuchFieldException {
         
-        final Method removeIndexFromHashCodesTable = HashSet.class.getDeclaredMethod("removeIndexFromHashTable", int.class);
+        final Method removeIndexFromHashCodesTable = HashSet.class.getDeclaredMethod("removeIndexFromHashTable", long.class);
         removeIndexFromHashCodesTable.setAccessible(true);
         
         final Field hashTable = HashSet.class.getDeclaredField("hashTable");
@@ -27,19 +27,19 @@ public class HashSetTest {
         
         HashSet cache = new HashSet(5);
         
-        byte[] hashTableValues = new byte[]{121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
-        dataField.set(cache, hashTableValues);
+        byte[] hashTableValues = new byte[]{121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, 121, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7};
+        dataField.set(cache, new byte[][] {hashTableValues});
         // hashcodes for those values. changing hashcode algorithm might fail this test.
-        Object[] indexesByHashCodeTableValues = new int[][] {null, null, new int[]{1, -1, -1}, new int[]{0, 2, -1}, null, null};
+        Object[] indexesByHashCodeTableValues = new int[][] {null, new int[]{1, -1, -1}, null, null, new int[]{0, 2, -1}, null};
         hashTable.set(cache, indexesByHashCodeTableValues);
         
-        removeIndexFromHashCodesTable.invoke(cache, 0);
+        removeIndexFromHashCodesTable.invoke(cache, 0L);
         
-        assert (Arrays.deepEquals((Object[])hashTable.get(cache), new Object[] {null, null, new int[]{1, -1, -1}, new int[]{2, -1, -1}, null, null}));
+        Assert.assertTrue(Arrays.deepEquals((Object[])hashTable.get(cache), new Object[] {null, new int[]{1, -1, -1}, null, null, new int[]{2, -1, -1}, null}));
         
-        removeIndexFromHashCodesTable.invoke(cache, 2);
+        removeIndexFromHashCodesTable.invoke(cache, 2L);
         
-        assert (Arrays.deepEquals((Object[])hashTable.get(cache), new Object[] {null, null, new int[]{1, -1, -1}, null, null, null}));
+        Assert.assertTrue(Arrays.deepEquals((Object[])hashTable.get(cache), new Object[] {null, new int[]{1, -1, -1}, null, null, null, null}));
         
     }
     
@@ -62,28 +62,28 @@ public class HashSetTest {
         byte[] value4 = { 3, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128,
                 3 };
         
-        final Method getValue = HashSet.class.getDeclaredMethod("getValue", int.class);
+        final Method getValue = HashSet.class.getDeclaredMethod("getValue", long.class);
         getValue.setAccessible(true);
         
         insert.invoke(cache, value1);
-        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Integer(0));
+        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Long(0));
         Assert.assertArrayEquals(returnedValue1, value1);
-        Assert.assertEquals(currentDataArrayIndex.getInt(cache), 1);
+        Assert.assertEquals(currentDataArrayIndex.getLong(cache), 1L);
 
         insert.invoke(cache, value2);
-        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Integer(1));
+        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Long(1));
         Assert.assertArrayEquals(returnedValue2, value2);
-        Assert.assertEquals(currentDataArrayIndex.getInt(cache), 2);
+        Assert.assertEquals(currentDataArrayIndex.getLong(cache), 2L);
         
         insert.invoke(cache, value3);
-        byte[] returnedValue3 = (byte[]) getValue.invoke(cache, new Integer(2));
+        byte[] returnedValue3 = (byte[]) getValue.invoke(cache, new Long(2));
         Assert.assertArrayEquals(returnedValue3, value3);
-        Assert.assertEquals(currentDataArrayIndex.getInt(cache), 0);
+        Assert.assertEquals(currentDataArrayIndex.getLong(cache), 0L);
 
         insert.invoke(cache, value4);
-        byte[] returnedValue4 = (byte[]) getValue.invoke(cache, new Integer(0));
+        byte[] returnedValue4 = (byte[]) getValue.invoke(cache, new Long(0));
         Assert.assertArrayEquals(returnedValue4, value4);
-        Assert.assertEquals(currentDataArrayIndex.getInt(cache), 1);
+        Assert.assertEquals(currentDataArrayIndex.getLong(cache), 1L);
         
     }
 
@@ -101,7 +101,7 @@ public class HashSetTest {
     @Test
     public void testGetValue() throws SecurityException, NoSuchMethodException, IllegalArgumentException,
             IllegalAccessException, InvocationTargetException {
-        final Method getValue = HashSet.class.getDeclaredMethod("getValue", int.class);
+        final Method getValue = HashSet.class.getDeclaredMethod("getValue", long.class);
         getValue.setAccessible(true);
         HashSet cache = new HashSet(50);
         byte[] value1 = { 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 };
@@ -113,8 +113,8 @@ public class HashSetTest {
         
         cache.add(value1Str);
         cache.add(value2Str);
-        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Integer(0));
-        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Integer(1));
+        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Long(0));
+        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Long(1));
         Assert.assertArrayEquals(value1, returnedValue1);
         Assert.assertArrayEquals(value2, returnedValue2);
     }
@@ -139,19 +139,19 @@ public class HashSetTest {
 
     @Test
     public void testSetValue() throws SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        final Method setValue = HashSet.class.getDeclaredMethod("setValue", int.class, byte[].class);
+        final Method setValue = HashSet.class.getDeclaredMethod("setValue", long.class, byte[].class);
         setValue.setAccessible(true);
         HashSet cache = new HashSet(50);
         byte[] value1 = { 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1 };
         byte[] value2 = { -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128,
                 -128 };
-        setValue.invoke(cache, new Integer(0), value1);
-        setValue.invoke(cache, new Integer(1), value2);
+        setValue.invoke(cache, new Long(0), value1);
+        setValue.invoke(cache, new Long(1), value2);
         
-        final Method getValue = HashSet.class.getDeclaredMethod("getValue", int.class);
+        final Method getValue = HashSet.class.getDeclaredMethod("getValue", long.class);
         getValue.setAccessible(true);
-        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Integer(0));
-        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Integer(1));
+        byte[] returnedValue1 = (byte[]) getValue.invoke(cache, new Long(0));
+        byte[] returnedValue2 = (byte[]) getValue.invoke(cache, new Long(1));
         Assert.assertArrayEquals(returnedValue1, value1);
         Assert.assertArrayEquals(returnedValue2, value2);
     }
@@ -278,5 +278,137 @@ public class HashSetTest {
         Assert.assertEquals(cache.size(), 1);
     }
 
+    /**
+     * Puts values to indexes above 2^31 which are kept in buckets as negative ints, then overwrites one of them.
+     */
+    @Test
+    public void testUnsignedIndexes() throws SecurityException, IllegalArgumentException, IllegalAccessException,
+            NoSuchFieldException {
+        final Field dataField = HashSet.class.getDeclaredField("data");
+        dataField.setAccessible(true);
+        final Field chunkShift = HashSet.class.getDeclaredField("chunkShift");
+        chunkShift.setAccessible(true);
+        final Field chunkMask = HashSet.class.getDeclaredField("chunkMask");
+        chunkMask.setAccessible(true);
+        final Field nbOfElements = HashSet.class.getDeclaredField("nbOfElements");
+        nbOfElements.setAccessible(true);
+        final Field currentDataArrayIndex = HashSet.class.getDeclaredField("currentDataArrayIndex");
+        currentDataArrayIndex.setAccessible(true);
+        final Field hashTable = HashSet.class.getDeclaredField("hashTable");
+        hashTable.setAccessible(true);
+
+        long firstIndex = 1L << 31;
+        HashSet cache = new HashSet(5);
+        // chunk 0 is never used, chunk 1 starts at index 2^31
+        dataField.set(cache, new byte[][] {new byte[16], new byte[32]});
+        chunkShift.setInt(cache, 31);
+        chunkMask.setLong(cache, firstIndex - 1);
+        nbOfElements.setLong(cache, firstIndex + 2);
+        currentDataArrayIndex.setLong(cache, firstIndex);
+
+        String value1 = UUID.randomUUID().toString().replaceAll("-", "");
+        String value2 = UUID.randomUUID().toString().replaceAll("-", "");
+        String value3 = UUID.randomUUID().toString().replaceAll("-", "");
+        Assert.assertTrue(cache.add(value1));
+        Assert.assertTrue(cache.add(value2));
+        Assert.assertFalse(cache.add(value1));
+        Assert.assertTrue(cache.contains(value2));
+        boolean negativeIndexFound = false;
+        for (int[] bucket : (int[][]) hashTable.get(cache)) {
+            if (bucket != null && (bucket[0] == (int) firstIndex || bucket[0] == (int) (firstIndex + 1))) {
+                negativeIndexFound = true;
+            }
+        }
+        Assert.assertTrue(negativeIndexFound);
+
+        // ring wrapped, go back to 2^31 so value3 overwrites value1
+        currentDataArrayIndex.setLong(cache, firstIndex);
+        Assert.assertTrue(cache.add(value3));
+        Assert.assertFalse(cache.contains(value1));
+        Assert.assertTrue(cache.contains(value2));
+        Assert.assertTrue(cache.contains(value3));
+        Assert.assertEquals(cache.longSize(), firstIndex + 2);
+    }
+
+    @Test
+    public void testLongSize() {
+        HashSet cache = new HashSet(5L);
+        cache.add(UUID.randomUUID().toString().replaceAll("-", ""));
+        cache.add(UUID.randomUUID().toString().replaceAll("-", ""));
+        Assert.assertEquals(cache.longSize(), 2L);
+        Assert.assertEquals(cache.size(), 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeTooBig() {
+        new HashSet(HashSet.MAX_NB_OF_ELEMENTS + 1);
+    }
+
+    /**
+     * Makes chunks tiny so values are spread across several data array chunks.
+     */
+    @Test
+    public void testChunkedDataArray() throws SecurityException, IllegalArgumentException, IllegalAccessException,
+            NoSuchFieldException {
+        final Field dataField = HashSet.class.getDeclaredField("data");
+        dataField.setAccessible(true);
+        final Field chunkShift = HashSet.class.getDeclaredField("chunkShift");
+        chunkShift.setAccessible(true);
+        final Field chunkMask = HashSet.class.getDeclaredField("chunkMask");
+        chunkMask.setAccessible(true);
+
+        int size = 5;
+        HashSet cache = new HashSet(size);
+        dataField.set(cache, new byte[][] {new byte[32], new byte[32], new byte[16]});
+        chunkShift.setInt(cache, 1);
+        chunkMask.setLong(cache, 1L);
+
+        String[] values = new String[size + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString().replaceAll("-", "");
+            Assert.assertTrue(cache.add(values[i]));
+        }
+        Assert.assertEquals(cache.longSize(), 5L);
+        // first value was overwritten by the last one
+        Assert.assertFalse(cache.contains(values[0]));
+        for (int i = 1; i < values.length; i++) {
+            Assert.assertTrue(cache.contains(values[i]));
+        }
+        Assert.assertArrayEquals((byte[]) cache.toArray()[0], Converter.convertToArray(values[size]));
+        Assert.assertArrayEquals((byte[]) cache.toArray()[4], Converter.convertToArray(values[4]));
+    }
+
+    @Test
+    public void testPreallocate() throws SecurityException, IllegalArgumentException, IllegalAccessException,
+            NoSuchFieldException {
+        final Field hashTable = HashSet.class.getDeclaredField("hashTable");
+        hashTable.setAccessible(true);
+
+        int size = 50;
+        HashSet cache = new HashSet(size, 16, true);
+        for (int[] bucket : (int[][]) hashTable.get(cache)) {
+            Assert.assertArrayEquals(bucket, new int[] { -1, -1, -1 });
+        }
+
+        String first = UUID.randomUUID().toString().replaceAll("-", "");
+        cache.add(first);
+        for (int i = 0; i < size; i++) {
+            cache.add(UUID.randomUUID().toString().replaceAll("-", ""));
+        }
+        Assert.assertFalse(cache.contains(first));
+        Assert.assertEquals(cache.size(), size);
+        for (int[] bucket : (int[][]) hashTable.get(cache)) {
+            Assert.assertNotNull(bucket);
+        }
+
+        cache.clear();
+        Assert.assertEquals(cache.size(), 0);
+        for (int[] bucket : (int[][]) hashTable.get(cache)) {
+            Assert.assertArrayEquals(bucket, new int[] { -1, -1, -1 });
+        }
+        Assert.assertTrue(cache.add(first));
+        Assert.assertTrue(cache.contains(first));
+    }
+
 }
 
@@ -0,0 +1,55 @@
+package org.intelligentjava;
+
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void testCardinality() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        Assert.assertEquals(hyperLogLog.cardinality(), 0);
+        int distinct = 100000;
+        for (int i = 0; i < distinct; i++) {
+            String value = UUID.randomUUID().toString().replaceAll("-", "");
+            hyperLogLog.add(value);
+            hyperLogLog.add(value);
+        }
+        Assert.assertEquals(hyperLogLog.cardinality(), distinct, distinct * 0.05);
+    }
+
+    @Test
+    public void testCardinalityAfterEviction() {
+        int size = 1000;
+        HashSet cache = new HashSet(size);
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        cache.setCardinalitySketch(hyperLogLog);
+        int distinct = 20000;
+        for (int i = 0; i < distinct; i++) {
+            cache.add(UUID.randomUUID().toString().replaceAll("-", ""));
+        }
+        Assert.assertEquals(cache.size(), size);
+        Assert.assertEquals(hyperLogLog.cardinality(), distinct, distinct * 0.05);
+    }
+
+    @Test
+    public void testMergeAndSerialize() {
+        HyperLogLog shard1 = new HyperLogLog(12);
+        HyperLogLog shard2 = new HyperLogLog(12);
+        int distinct = 10000;
+        for (int i = 0; i < distinct; i++) {
+            String value = UUID.randomUUID().toString().replaceAll("-", "");
+            (i % 2 == 0 ? shard1 : shard2).add(value);
+        }
+        shard1.merge(HyperLogLog.fromByteArray(shard2.toByteArray()));
+        Assert.assertEquals(shard1.cardinality(), distinct, distinct * 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecision() {
+        new HyperLogLog(12).merge(new HyperLogLog(14));
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.intelligentjava;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Memory footprint regression tests. Fills sets of different sizes, value lengths and fill ratios and checks bytes per
+ * entry against a fixed budget, against java.util.HashSet&lt;String&gt; and String[] with the same values, and checks that
+ * {@link HashSet#memoryUsage()} equals the layout measured by JOL. Default test heap covers sizes up to 10M, 100M runs
+ * with mvn test -Plarge-footprint. Sizes which do not fit into the test JVM heap are skipped. Report of every case goes
+ * to the surefire output file.
+ *
+ */
+@RunWith(Parameterized.class)
+public class MemoryFootprintTest {
+
+    /** Maximum bytes per entry on top of the value itself (hash table reference and bucket space). */
+    private static final int OVERHEAD_BUDGET = 28;
+
+    /** Number of values used to measure java.util.HashSet and String[] bytes per entry. */
+    private static final int BASELINE_SIZE = 100000;
+
+    /** Largest set measured by JOL, walking bigger object graphs takes too long. */
+    private static final int MAX_JOL_SIZE = 1000000;
+
+    /** java.util.HashSet&lt;String&gt; bytes per entry by value size. */
+    private static final Map<Integer, Double> JAVA_SET_BYTES_PER_ENTRY = new HashMap<>();
+
+    /** String[] bytes per entry by value size. */
+    private static final Map<Integer, Double> STRING_ARRAY_BYTES_PER_ENTRY = new HashMap<>();
+
+    private final int size;
+
+    private final int valueSize;
+
+    private final double fill;
+
+    public MemoryFootprintTest(int size, int valueSize, double fill) {
+        this.size = size;
+        this.valueSize = valueSize;
+        this.fill = fill;
+    }
+
+    @Parameters(name = "size={0}, valueSize={1}, fill={2}")
+    public static Collection<Object[]> parameters() {
+        Collection<Object[]> parameters = new ArrayList<>();
+        for (int size : new int[] { 1000, 100000, 1000000, 10000000, 100000000 }) {
+            for (int valueSize : new int[] { 16, 20, 32 }) {
+                for (double fill : new double[] { 0.5, 1.0 }) {
+                    parameters.add(new Object[] { size, valueSize, fill });
+                }
+            }
+        }
+        return parameters;
+    }
+
+    @Test
+    public void testFootprint() {
+        // slab, hash table and buckets with some headroom
+        long requiredMemory = (long) size * (valueSize + OVERHEAD_BUDGET) * 5 / 4;
+        Assume.assumeTrue(requiredMemory < Runtime.getRuntime().maxMemory());
+
+        long start = System.nanoTime();
+        HashSet set = new HashSet(size, valueSize);
+        long constructionTime = System.nanoTime() - start;
+        long count = (long) (size * fill);
+        Random random = new Random(size);
+        byte[] value = new byte[valueSize];
+        for (long i = 0; i < count; i++) {
+            random.nextBytes(value);
+            set.add(Converter.convertToString(value));
+        }
+
+        long memoryUsage = set.memoryUsage();
+        double bytesPerEntry = (double) memoryUsage / size;
+        System.out.println(String.format("size=%d valueSize=%d fill=%.1f: %.1f bytes per entry, %d bytes total, "
+                + "java.util.HashSet %.1f, String[] %.1f, construction %d ms", size, valueSize, fill, bytesPerEntry,
+                memoryUsage, javaSetBytesPerEntry(valueSize), stringArrayBytesPerEntry(valueSize),
+                constructionTime / 1000000));
+
+        Assert.assertTrue("Budget exceeded: " + bytesPerEntry, bytesPerEntry <= valueSize + OVERHEAD_BUDGET);
+        if (fill == 1.0) {
+            Assert.assertTrue(bytesPerEntry < stringArrayBytesPerEntry(valueSize));
+            Assert.assertTrue(bytesPerEntry * 2 < javaSetBytesPerEntry(valueSize));
+        }
+        if (size <= MAX_JOL_SIZE) {
+            long jolSize = GraphLayout.parseInstance(set).totalSize() - ClassLayout.parseInstance(set).instanceSize();
+            Assert.assertEquals(jolSize, memoryUsage);
+        }
+    }
+
+    /**
+     * Measures java.util.HashSet&lt;String&gt; bytes per entry with hexadecimal strings of the given value size.
+     */
+    private static synchronized double javaSetBytesPerEntry(int valueSize) {
+        return JAVA_SET_BYTES_PER_ENTRY.computeIfAbsent(valueSize, v -> {
+            java.util.Set<String> javaSet = new java.util.HashSet<>();
+            for (String s : randomHexStrings(valueSize)) {
+                javaSet.add(s);
+            }
+            return (double) GraphLayout.parseInstance(javaSet).totalSize() / BASELINE_SIZE;
+        });
+    }
+
+    /**
+     * Measures String[] bytes per entry with hexadecimal strings of the given value size.
+     */
+    private static synchronized double stringArrayBytesPerEntry(int valueSize) {
+        return STRING_ARRAY_BYTES_PER_ENTRY.computeIfAbsent(valueSize,
+                v -> (double) GraphLayout.parseInstance((Object) randomHexStrings(valueSize)).totalSize() / BASELINE_SIZE);
+    }
+
+    private static String[] randomHexStrings(int valueSize) {
+        Random random = new Random(valueSize);
+        byte[] value = new byte[valueSize];
+        String[] strings = new String[BASELINE_SIZE];
+        for (int i = 0; i < strings.length; i++) {
+            random.nextBytes(value);
+            strings[i] = Converter.convertToString(value);
+        }
+        return strings;
+    }
+
+}
@@ -0,0 +1,73 @@
+package org.intelligentjava;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Startup benchmark. Reports construction time and p99 latency of the adds made during the first seconds after
+ * construction, with and without preallocation. Adds run for the whole duration, the set evicts old values once it is
+ * full. Duration can be changed with -Dstartup.millis (e.g. 60000 for the first minute), set size with -Dstartup.size.
+ *
+ */
+public class StartupLatencyTest {
+
+    /** Number of elements in the benchmarked set. */
+    private static final int SIZE = Integer.getInteger("startup.size", 1000000);
+
+    /** How long adds are measured after construction. */
+    private static final long MILLIS = Long.getLong("startup.millis", 2000L);
+
+    /** Number of latencies kept for percentiles, sampled uniformly from all adds. */
+    private static final int RESERVOIR_SIZE = 100000;
+
+    @Test
+    public void testStartupLatency() {
+        measure(false);
+        measure(true);
+    }
+
+    private void measure(boolean preallocate) {
+        long start = System.nanoTime();
+        HashSet set = new HashSet(SIZE, 16, preallocate);
+        long constructionTime = System.nanoTime() - start;
+
+        Random random = new Random(SIZE);
+        byte[] value = new byte[16];
+        long[] reservoir = new long[RESERVOIR_SIZE];
+        long count = 0;
+        long maxLatency = 0;
+        long end = System.nanoTime() + MILLIS * 1000000;
+        String last = null;
+        while (System.nanoTime() < end) {
+            random.nextBytes(value);
+            last = Converter.convertToString(value);
+            long addStart = System.nanoTime();
+            set.add(last);
+            long latency = System.nanoTime() - addStart;
+            maxLatency = Math.max(maxLatency, latency);
+            // reservoir sampling, every add has the same chance to be kept
+            if (count < RESERVOIR_SIZE) {
+                reservoir[(int) count] = latency;
+            } else {
+                long slot = (long) (random.nextDouble() * (count + 1));
+                if (slot < RESERVOIR_SIZE) {
+                    reservoir[(int) slot] = latency;
+                }
+            }
+            count++;
+        }
+        Assert.assertTrue("No adds in " + MILLIS + " ms", count > 0);
+        int samples = (int) Math.min(count, RESERVOIR_SIZE);
+        Arrays.sort(reservoir, 0, samples);
+        System.out.println(String.format("preallocate=%b size=%d: construction %d ms, %d adds in first %d ms, "
+                + "p99 %d ns, max %d ns", preallocate, SIZE, constructionTime / 1000000, count, MILLIS,
+                reservoir[(int) (samples * 0.99)], maxLatency));
+
+        Assert.assertEquals(set.longSize(), Math.min(count, SIZE));
+        Assert.assertTrue(set.contains(last));
+    }
+
+}